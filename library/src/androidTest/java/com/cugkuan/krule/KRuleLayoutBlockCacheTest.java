@@ -0,0 +1,209 @@
+package com.cugkuan.krule;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * left,right,follow 区域测量缓存：只有 bottom 变化的时候复用，区域变化的时候重新测量
+ */
+@RunWith(AndroidJUnit4.class)
+public class KRuleLayoutBlockCacheTest {
+
+    private static final int WIDTH = 1000;
+
+    /**
+     * follow 之后 left 的高度已经不小于 right，bottom 不会在判断 follow 的时候被测量
+     */
+    private static final int FOLLOW_HEIGHT_FILL = 300;
+    /**
+     * follow 之后 left 还有空间，bottom 因为宽度不够而结束 follow，会在判断的时候被测量
+     */
+    private static final int FOLLOW_HEIGHT_SHORT = 100;
+
+    private Context mContext;
+
+    private KRuleLayout mLayout;
+    private View mLeft;
+    private View mRight;
+    private View mFollow;
+    private View mBottom;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+    }
+
+    private static KRuleLayout.LayoutParams params(int width, int height, int rule) {
+        KRuleLayout.LayoutParams params = new KRuleLayout.LayoutParams(width, height);
+        params.rule = rule;
+        return params;
+    }
+
+    /**
+     * left 300x100, right 600x400, follow 300xfollowHeight, bottom 1000x200
+     */
+    private KRuleLayout build(int followHeight) {
+        KRuleLayout layout = new KRuleLayout(mContext);
+        layout.addView(new View(mContext), params(300, 100, KRuleLayout.LayoutParams.RULE_LEFT));
+        layout.addView(new View(mContext), params(600, 400, KRuleLayout.LayoutParams.RULE_RIGHT));
+        layout.addView(new View(mContext), params(300, followHeight, KRuleLayout.LayoutParams.RULE_BOTTOM));
+        layout.addView(new View(mContext), params(1000, 200, KRuleLayout.LayoutParams.RULE_BOTTOM));
+        return layout;
+    }
+
+    private void setUpLayout(int followHeight) {
+        mLayout = build(followHeight);
+        mLeft = mLayout.getChildAt(0);
+        mRight = mLayout.getChildAt(1);
+        mFollow = mLayout.getChildAt(2);
+        mBottom = mLayout.getChildAt(3);
+    }
+
+    private static void measure(KRuleLayout layout, int width) {
+        layout.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+    }
+
+    private static void layout(KRuleLayout layout) {
+        layout.layout(0, 0, layout.getMeasuredWidth(), layout.getMeasuredHeight());
+    }
+
+    private static void measureAndLayout(KRuleLayout layout, int width) {
+        measure(layout, width);
+        layout(layout);
+    }
+
+    private static void assertSameFrame(View expected, View actual) {
+        assertEquals(expected.getLeft(), actual.getLeft());
+        assertEquals(expected.getTop(), actual.getTop());
+        assertEquals(expected.getRight(), actual.getRight());
+        assertEquals(expected.getBottom(), actual.getBottom());
+    }
+
+    /**
+     * 与重新创建并测量的布局比较
+     */
+    private void assertSameAsColdMeasure(int followHeight, int width) {
+        KRuleLayout cold = build(followHeight);
+        measureAndLayout(cold, width);
+        assertEquals(cold.getMeasuredHeight(), mLayout.getMeasuredHeight());
+        assertSameFrame(cold.getChildAt(0), mLeft);
+        assertSameFrame(cold.getChildAt(1), mRight);
+        assertSameFrame(cold.getChildAt(2), mFollow);
+        assertSameFrame(cold.getChildAt(3), mBottom);
+    }
+
+    @Test
+    public void coldMeasure_noCount() {
+        setUpLayout(FOLLOW_HEIGHT_FILL);
+        measureAndLayout(mLayout, WIDTH);
+
+        assertEquals(0, mLayout.getBlockCacheHitCount());
+        assertEquals(0, mLayout.getBlockCacheInvalidateCount());
+        //follow 跟随在 left 的下面，bottom 在整个区域的下面
+        assertEquals(100, mFollow.getTop());
+        assertEquals(400, mBottom.getTop());
+    }
+
+    @Test
+    public void bottomRequestLayout_reusesBlock() {
+        setUpLayout(FOLLOW_HEIGHT_FILL);
+        measureAndLayout(mLayout, WIDTH);
+
+        mBottom.requestLayout();
+        measureAndLayout(mLayout, WIDTH);
+
+        assertEquals(1, mLayout.getBlockCacheHitCount());
+        assertEquals(0, mLayout.getBlockCacheInvalidateCount());
+        assertSameAsColdMeasure(FOLLOW_HEIGHT_FILL, WIDTH);
+    }
+
+    @Test
+    public void bottomRequestLayout_measuredTwiceInPass_countsOnce() {
+        setUpLayout(FOLLOW_HEIGHT_FILL);
+        measureAndLayout(mLayout, WIDTH);
+
+        mBottom.requestLayout();
+        measure(mLayout, WIDTH);
+        measure(mLayout, WIDTH);
+        layout(mLayout);
+
+        assertEquals(1, mLayout.getBlockCacheHitCount());
+        assertEquals(0, mLayout.getBlockCacheInvalidateCount());
+        assertSameAsColdMeasure(FOLLOW_HEIGHT_FILL, WIDTH);
+    }
+
+    @Test
+    public void coldMeasure_measuredTwiceInPass_noCount() {
+        setUpLayout(FOLLOW_HEIGHT_FILL);
+        measure(mLayout, WIDTH);
+        measure(mLayout, WIDTH);
+        layout(mLayout);
+
+        assertEquals(0, mLayout.getBlockCacheHitCount());
+        assertEquals(0, mLayout.getBlockCacheInvalidateCount());
+    }
+
+    @Test
+    public void followChanged_remeasuresBlock() {
+        setUpLayout(FOLLOW_HEIGHT_FILL);
+        measureAndLayout(mLayout, WIDTH);
+
+        mFollow.setLayoutParams(params(300, FOLLOW_HEIGHT_SHORT, KRuleLayout.LayoutParams.RULE_BOTTOM));
+        measureAndLayout(mLayout, WIDTH);
+
+        assertEquals(0, mLayout.getBlockCacheHitCount());
+        assertEquals(1, mLayout.getBlockCacheInvalidateCount());
+        assertSameAsColdMeasure(FOLLOW_HEIGHT_SHORT, WIDTH);
+    }
+
+    @Test
+    public void followChanged_measuredTwiceInPass_countsOnce() {
+        setUpLayout(FOLLOW_HEIGHT_FILL);
+        measureAndLayout(mLayout, WIDTH);
+
+        mFollow.requestLayout();
+        measure(mLayout, WIDTH);
+        measure(mLayout, WIDTH);
+        layout(mLayout);
+
+        assertEquals(0, mLayout.getBlockCacheHitCount());
+        assertEquals(1, mLayout.getBlockCacheInvalidateCount());
+        assertSameAsColdMeasure(FOLLOW_HEIGHT_FILL, WIDTH);
+    }
+
+    @Test
+    public void measuredBoundaryChanged_remeasuresBlock() {
+        setUpLayout(FOLLOW_HEIGHT_SHORT);
+        measureAndLayout(mLayout, WIDTH);
+        //bottom 没有跟随，在整个区域的下面
+        assertEquals(400, mBottom.getTop());
+
+        mBottom.requestLayout();
+        measureAndLayout(mLayout, WIDTH);
+
+        assertEquals(0, mLayout.getBlockCacheHitCount());
+        assertEquals(1, mLayout.getBlockCacheInvalidateCount());
+        assertSameAsColdMeasure(FOLLOW_HEIGHT_SHORT, WIDTH);
+    }
+
+    @Test
+    public void widthChanged_remeasuresBlock() {
+        setUpLayout(FOLLOW_HEIGHT_FILL);
+        measureAndLayout(mLayout, WIDTH);
+
+        measureAndLayout(mLayout, WIDTH + 100);
+
+        assertEquals(0, mLayout.getBlockCacheHitCount());
+        assertEquals(1, mLayout.getBlockCacheInvalidateCount());
+        assertSameAsColdMeasure(FOLLOW_HEIGHT_FILL, WIDTH + 100);
+    }
+}
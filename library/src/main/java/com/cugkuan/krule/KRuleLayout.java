@@ -8,6 +8,7 @@ import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -50,6 +51,89 @@ public class KRuleLayout extends ViewGroup {
      */
     private List<View> mFollowView = new ArrayList<>();
 
+    /**
+     * 布局快照文件，为 null 的时候不使用快照
+     */
+    private File mSnapshotFile;
+    private int mSnapshotContentHash;
+    /**
+     * 等待用于第一帧的快照
+     */
+    private KRuleSnapshot mPendingSnapshot;
+    /**
+     * 从文件中读取的快照，与真正的布局相同的时候不重复写入
+     */
+    private KRuleSnapshot mSavedSnapshot;
+    /**
+     * 当前 contentHash 的快照是否已经校验过；校验过之后不再写入，
+     * 避免把展开、收起之类的临时状态记录到快照里
+     */
+    private boolean mSnapshotVerified;
+    /**
+     * 本次测量是否直接使用了快照
+     */
+    private boolean mMeasuredFromSnapshot;
+
+    /**
+     * left,right,follow 组成的区域是否可以复用上一次的测量结果
+     */
+    private boolean mBlockCacheValid;
+    /**
+     * 上一次测量该区域时的规格和 padding
+     */
+    private int mBlockWidthSpec;
+    private int mBlockHeightSpec;
+    private int mBlockPaddingLeft;
+    private int mBlockPaddingTop;
+    private int mBlockPaddingRight;
+    private int mBlockPaddingBottom;
+    private View mBlockLeftView;
+    private View mBlockRightView;
+    private List<View> mBlockFollowView = new ArrayList<>();
+    /**
+     * 第一个没有跟随的 bottom View，它决定了 follow 在哪里结束
+     */
+    private View mBlockBoundaryView;
+    /**
+     * mBlockBoundaryView 是否因为宽度不够而结束，这种情况下它的内容变化会影响划分
+     */
+    private boolean mBlockBoundaryMeasured;
+    private int mBlockBoundaryTopMargin;
+    /**
+     * 该区域左右两边的高度
+     */
+    private int mBlockLeftHeight;
+    private int mBlockRightHeight;
+    /**
+     * 上一次 onLayout 之后是否重新测量过该区域；父布局在一次布局中可能会测量多次，
+     * 这时子 View 的 isLayoutRequested() 还没有清除，不能据此再次判断为失效
+     */
+    private boolean mBlockMeasuredInPass;
+    /**
+     * 上一次 onLayout 之后是否已经计数，一次布局最多计数一次
+     */
+    private boolean mBlockCountedInPass;
+    private int mBlockCacheHitCount;
+    private int mBlockCacheInvalidateCount;
+
+    private final Runnable mRemeasureRunnable = new Runnable() {
+        @Override
+        public void run() {
+            requestLayout();
+        }
+    };
+
+    private final Runnable mSaveSnapshotRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (isLayoutRequested()) {
+                //还有布局没有完成，等下一次 onLayout 之后再记录
+                return;
+            }
+            saveSnapshot();
+        }
+    };
+
 
     public KRuleLayout(Context context) {
         this(context, null);
@@ -69,6 +153,48 @@ public class KRuleLayout extends ViewGroup {
         }
     }
 
+    /**
+     * 设置布局快照。
+     * <p>
+     * 第一次真正的布局完成后（第一帧之后），子 View 的大小、位置以及 follow,bottom 的划分会在后台线程写入 file，
+     * 同一个 contentHash 只记录一次；下次冷启动的时候，如果 contentHash、宽度和方向都一致，
+     * 第一帧直接使用快照进行布局，真正的测量在第一帧之后进行，有差异的时候重新布局并更新快照。
+     *
+     * @param file        快照文件，为 null 的时候关闭快照
+     * @param contentHash 内容的 hash，内容变化的时候快照失效
+     */
+    public void setLayoutSnapshot(File file, int contentHash) {
+        mSnapshotFile = file;
+        mSnapshotContentHash = contentHash;
+        mPendingSnapshot = null;
+        mSavedSnapshot = null;
+        mSnapshotVerified = false;
+        removeCallbacks(mSaveSnapshotRunnable);
+        if (file != null) {
+            KRuleSnapshot snapshot = KRuleSnapshot.read(file);
+            if (snapshot != null && snapshot.contentHash == contentHash && snapshot.direction == mDirection) {
+                mPendingSnapshot = snapshot;
+                mSavedSnapshot = snapshot;
+            }
+        }
+        requestLayout();
+    }
+
+
+    /**
+     * 只有 bottom 变化的时候，left,right,follow 区域复用上一次测量结果的次数
+     */
+    public int getBlockCacheHitCount() {
+        return mBlockCacheHitCount;
+    }
+
+    /**
+     * left,right,follow 区域发生变化，需要重新测量的次数
+     */
+    public int getBlockCacheInvalidateCount() {
+        return mBlockCacheInvalidateCount;
+    }
+
 
     @Override
     public LayoutParams generateLayoutParams(AttributeSet attrs) {
@@ -104,101 +230,222 @@ public class KRuleLayout extends ViewGroup {
         mFollowView.clear();
         mLeftView = null;
         mRightView = null;
-        int leftHeight = 0;
-        int rightHeight = 0;
+        mMeasuredFromSnapshot = false;
+        if (mPendingSnapshot != null && measureFromSnapshot(widthMeasureSpec)) {
+            //子 View 按照快照的大小测量过，不能再复用，这里不计入失效次数
+            clearBlockCache();
+            return;
+        }
         prepareChildView();
         if (mLeftView == null || mRightView == null) {
+            if (mBlockCacheValid) {
+                countBlockInvalidate();
+                clearBlockCache();
+            }
             allBottomMeasure(widthMeasureSpec, heightMeasureSpec);
         } else {
-            LayoutParams paramsRight = (LayoutParams) mRightView.getLayoutParams();
-            LayoutParams paramsLeft = (LayoutParams) mLeftView.getLayoutParams();
-            if (paramsLeft.layout_weight > 0 && paramsRight.layout_weight > 0) {
-                //表明这个Layout 是按照比例进行分配的
-                measureWeight(widthMeasureSpec, heightMeasureSpec);
+            if (reuseBlockMeasure(widthMeasureSpec, heightMeasureSpec)) {
+                //只有 bottom 发生了变化
+                for (View view : mBottomViews) {
+                    if (view.isLayoutRequested()) {
+                        //本次布局中已经重新测量过该区域的时候，不算作复用
+                        if (!mBlockCountedInPass && !mBlockMeasuredInPass) {
+                            mBlockCountedInPass = true;
+                            mBlockCacheHitCount++;
+                        }
+                        break;
+                    }
+                }
             } else {
-                if (mDirection == DIRECTION_LEFT) {
-                    measureLeftToRight(widthMeasureSpec, heightMeasureSpec);
-                } else {
-                    measureRightToLeft(widthMeasureSpec, heightMeasureSpec);
+                if (mBlockCacheValid) {
+                    countBlockInvalidate();
                 }
+                measureBlock(widthMeasureSpec, heightMeasureSpec);
+            }
+            int totalHeight = Math.max(mBlockRightHeight, mBlockLeftHeight);
+            for (View view : mBottomViews) {
+                LayoutParams params = (LayoutParams) view.getLayoutParams();
+                measureChildWithMargins(view, widthMeasureSpec, 0, heightMeasureSpec, 0);
+                totalHeight = totalHeight + view.getMeasuredHeight() + params.topMargin + params.bottomMargin;
             }
-            /**
-             * 左边可支配的宽度
-             */
-            int leftUsedWidth = mLeftView.getMeasuredWidth() + paramsLeft.leftMargin + paramsLeft.rightMargin;
-            /**
-             * 右边可支配的宽度
-             */
-            int rightUsedWidth = mRightView.getMeasuredWidth() + paramsRight.rightMargin + paramsRight.leftMargin;
-            //布局其它的元素
-            leftHeight = mLeftView.getMeasuredHeight() + paramsLeft.topMargin + paramsLeft.bottomMargin;
-            rightHeight = mRightView.getMeasuredHeight() + paramsRight.topMargin + paramsRight.bottomMargin;
+            totalHeight = totalHeight + getPaddingTop() + getPaddingBottom();
+            setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), totalHeight);
+        }
+    }
+
+    /**
+     * 测量 left,right 以及跟随它们的 follow，并记录结果，下次只有 bottom 变化的时候直接复用
+     */
+    private void measureBlock(int widthMeasureSpec, int heightMeasureSpec) {
+        int leftHeight;
+        int rightHeight;
+        mBlockBoundaryMeasured = false;
+        LayoutParams paramsRight = (LayoutParams) mRightView.getLayoutParams();
+        LayoutParams paramsLeft = (LayoutParams) mLeftView.getLayoutParams();
+        if (paramsLeft.layout_weight > 0 && paramsRight.layout_weight > 0) {
+            //表明这个Layout 是按照比例进行分配的
+            measureWeight(widthMeasureSpec, heightMeasureSpec);
+        } else {
             if (mDirection == DIRECTION_LEFT) {
+                measureLeftToRight(widthMeasureSpec, heightMeasureSpec);
+            } else {
+                measureRightToLeft(widthMeasureSpec, heightMeasureSpec);
+            }
+        }
+        /**
+         * 左边可支配的宽度
+         */
+        int leftUsedWidth = mLeftView.getMeasuredWidth() + paramsLeft.leftMargin + paramsLeft.rightMargin;
+        /**
+         * 右边可支配的宽度
+         */
+        int rightUsedWidth = mRightView.getMeasuredWidth() + paramsRight.rightMargin + paramsRight.leftMargin;
+        //布局其它的元素
+        leftHeight = mLeftView.getMeasuredHeight() + paramsLeft.topMargin + paramsLeft.bottomMargin;
+        rightHeight = mRightView.getMeasuredHeight() + paramsRight.topMargin + paramsRight.bottomMargin;
+        if (mDirection == DIRECTION_LEFT) {
 
-                leftHeight = leftHeight + ignoreHeight;
-                Iterator<View> iterator = mBottomViews.iterator();
+            leftHeight = leftHeight + ignoreHeight;
+            Iterator<View> iterator = mBottomViews.iterator();
 
-                while (iterator.hasNext()) {
-                    View view = iterator.next();
-                    LayoutParams params = (LayoutParams) view.getLayoutParams();
-                    leftHeight = leftHeight + params.topMargin;
-                    if (leftHeight >= rightHeight) {
-                        leftHeight = leftHeight - params.topMargin;
+            while (iterator.hasNext()) {
+                View view = iterator.next();
+                LayoutParams params = (LayoutParams) view.getLayoutParams();
+                leftHeight = leftHeight + params.topMargin;
+                if (leftHeight >= rightHeight) {
+                    leftHeight = leftHeight - params.topMargin;
+                    break;
+                } else {
+                    int childHeightSpec = getChildMeasureSpec(heightMeasureSpec, 0, params.height);
+                    int ableUserWidthSpece = MeasureSpec.makeMeasureSpec(leftUsedWidth - params.leftMargin - params.rightMargin,
+                            MeasureSpec.EXACTLY);
+                    int chileWidthSpec = getChildMeasureSpec(ableUserWidthSpece,params.leftMargin +params.rightMargin,
+                            params.width);
+                    view.measure(chileWidthSpec, childHeightSpec);
+                    if (view.getMeasuredWidth() + params.leftMargin +params.rightMargin > leftUsedWidth){
+                        mBlockBoundaryMeasured = true;
                         break;
-                    } else {
-                        int childHeightSpec = getChildMeasureSpec(heightMeasureSpec, 0, params.height);
-                        int ableUserWidthSpece = MeasureSpec.makeMeasureSpec(leftUsedWidth - params.leftMargin - params.rightMargin,
-                                MeasureSpec.EXACTLY);
-                        int chileWidthSpec = getChildMeasureSpec(ableUserWidthSpece,params.leftMargin +params.rightMargin,
-                                params.width);
-                        view.measure(chileWidthSpec, childHeightSpec);
-                        if (view.getMeasuredWidth() + params.leftMargin +params.rightMargin > leftUsedWidth){
-                            break;
-                        }
-
-                        leftHeight = leftHeight + view.getMeasuredHeight() + params.bottomMargin;
-                        mFollowView.add(view);
-                        iterator.remove();
                     }
+
+                    leftHeight = leftHeight + view.getMeasuredHeight() + params.bottomMargin;
+                    mFollowView.add(view);
+                    iterator.remove();
                 }
-                leftHeight = leftHeight - ignoreHeight;
+            }
+            leftHeight = leftHeight - ignoreHeight;
 
-            } else {
-                rightHeight = rightHeight + ignoreHeight;
-                Iterator<View> iterator = mBottomViews.iterator();
-                while (iterator.hasNext()) {
-                    View view = iterator.next();
-                    LayoutParams params = (LayoutParams) view.getLayoutParams();
-                    rightHeight = rightHeight + params.topMargin;
-                    if (rightHeight >= leftHeight) {
-                        rightHeight = rightHeight - params.topMargin;
+        } else {
+            rightHeight = rightHeight + ignoreHeight;
+            Iterator<View> iterator = mBottomViews.iterator();
+            while (iterator.hasNext()) {
+                View view = iterator.next();
+                LayoutParams params = (LayoutParams) view.getLayoutParams();
+                rightHeight = rightHeight + params.topMargin;
+                if (rightHeight >= leftHeight) {
+                    rightHeight = rightHeight - params.topMargin;
+                    break;
+                } else {
+                    int childHeightSpec = getChildMeasureSpec(heightMeasureSpec, 0, params.height);
+                    int ableUserWidthSpece = MeasureSpec.makeMeasureSpec(rightUsedWidth - params.leftMargin - params.rightMargin,
+                            MeasureSpec.EXACTLY);
+                    int chileWidthSpec = getChildMeasureSpec(ableUserWidthSpece,params.leftMargin +params.rightMargin,
+                            params.width);
+                    view.measure(chileWidthSpec, childHeightSpec);
+                    if (view.getMeasuredWidth() + params.leftMargin + params.rightMargin > rightUsedWidth){
+                        mBlockBoundaryMeasured = true;
                         break;
-                    } else {
-                        int childHeightSpec = getChildMeasureSpec(heightMeasureSpec, 0, params.height);
-                        int ableUserWidthSpece = MeasureSpec.makeMeasureSpec(rightUsedWidth - params.leftMargin - params.rightMargin,
-                                MeasureSpec.EXACTLY);
-                        int chileWidthSpec = getChildMeasureSpec(ableUserWidthSpece,params.leftMargin +params.rightMargin,
-                                params.width);
-                        view.measure(chileWidthSpec, childHeightSpec);
-                        if (view.getMeasuredWidth() + params.leftMargin + params.rightMargin > rightUsedWidth){
-                            break;
-                        }
-                        rightHeight = rightHeight + view.getMeasuredHeight() + params.bottomMargin;
-                        mFollowView.add(view);
-                        iterator.remove();
                     }
+                    rightHeight = rightHeight + view.getMeasuredHeight() + params.bottomMargin;
+                    mFollowView.add(view);
+                    iterator.remove();
                 }
-                rightHeight = rightHeight - ignoreHeight;
             }
-            int totalHeight = Math.max(rightHeight, leftHeight);
-            for (View view : mBottomViews) {
-                LayoutParams params = (LayoutParams) view.getLayoutParams();
-                measureChildWithMargins(view, widthMeasureSpec, 0, heightMeasureSpec, 0);
-                totalHeight = totalHeight + view.getMeasuredHeight() + params.topMargin + params.bottomMargin;
+            rightHeight = rightHeight - ignoreHeight;
+        }
+        mBlockLeftHeight = leftHeight;
+        mBlockRightHeight = rightHeight;
+
+        mBlockWidthSpec = widthMeasureSpec;
+        mBlockHeightSpec = heightMeasureSpec;
+        mBlockPaddingLeft = getPaddingLeft();
+        mBlockPaddingTop = getPaddingTop();
+        mBlockPaddingRight = getPaddingRight();
+        mBlockPaddingBottom = getPaddingBottom();
+        mBlockLeftView = mLeftView;
+        mBlockRightView = mRightView;
+        mBlockFollowView.clear();
+        mBlockFollowView.addAll(mFollowView);
+        if (mBottomViews.isEmpty()) {
+            mBlockBoundaryView = null;
+        } else {
+            mBlockBoundaryView = mBottomViews.get(0);
+            mBlockBoundaryTopMargin = ((LayoutParams) mBlockBoundaryView.getLayoutParams()).topMargin;
+        }
+        mBlockCacheValid = true;
+        mBlockMeasuredInPass = true;
+    }
+
+    /**
+     * 规格、padding 以及 left,right,follow 都没有变化，并且它们都没有请求重新布局的时候，
+     * 复用上一次的测量结果，把 follow 从 mBottomViews 中移出
+     */
+    private boolean reuseBlockMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (!mBlockCacheValid
+                || mBlockWidthSpec != widthMeasureSpec || mBlockHeightSpec != heightMeasureSpec
+                || mBlockPaddingLeft != getPaddingLeft() || mBlockPaddingTop != getPaddingTop()
+                || mBlockPaddingRight != getPaddingRight() || mBlockPaddingBottom != getPaddingBottom()
+                || mBlockLeftView != mLeftView || mBlockRightView != mRightView) {
+            return false;
+        }
+        //本次布局中刚测量过，子 View 的 isLayoutRequested() 要到 layout 之后才清除
+        final boolean checkRequested = !mBlockMeasuredInPass;
+        if (checkRequested && (mLeftView.isLayoutRequested() || mRightView.isLayoutRequested())) {
+            return false;
+        }
+        final int followCount = mBlockFollowView.size();
+        if (mBottomViews.size() < followCount) {
+            return false;
+        }
+        for (int i = 0; i < followCount; i++) {
+            View view = mBottomViews.get(i);
+            if (view != mBlockFollowView.get(i) || (checkRequested && view.isLayoutRequested())) {
+                return false;
             }
-            totalHeight = totalHeight + getPaddingTop() + getPaddingBottom();
-            setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), totalHeight);
         }
+        View boundary = mBottomViews.size() > followCount ? mBottomViews.get(followCount) : null;
+        if (boundary != mBlockBoundaryView) {
+            return false;
+        }
+        if (boundary != null) {
+            if (checkRequested && mBlockBoundaryMeasured && boundary.isLayoutRequested()) {
+                return false;
+            }
+            if (((LayoutParams) boundary.getLayoutParams()).topMargin != mBlockBoundaryTopMargin) {
+                return false;
+            }
+        }
+        mFollowView.addAll(mBlockFollowView);
+        mBottomViews.subList(0, followCount).clear();
+        return true;
+    }
+
+    /**
+     * 区域发生变化的时候计数；本次布局中已经计数或者已经重新测量过的时候不再计数
+     */
+    private void countBlockInvalidate() {
+        if (!mBlockCountedInPass && !mBlockMeasuredInPass) {
+            mBlockCountedInPass = true;
+            mBlockCacheInvalidateCount++;
+        }
+    }
+
+    private void clearBlockCache() {
+        mBlockCacheValid = false;
+        mBlockMeasuredInPass = false;
+        mBlockLeftView = null;
+        mBlockRightView = null;
+        mBlockFollowView.clear();
+        mBlockBoundaryView = null;
     }
 
     /**
@@ -345,9 +592,67 @@ public class KRuleLayout extends ViewGroup {
     }
 
 
+    /**
+     * 使用快照进行测量，快照与当前的子 View 不匹配的时候返回 false。
+     * 只有宽度不一致的时候保留快照，父布局可能会先用其它的宽度测量一次；
+     * 子 View 的数量或者 GONE 不一致的时候，快照不再可用
+     */
+    private boolean measureFromSnapshot(int widthMeasureSpec) {
+        KRuleSnapshot snapshot = mPendingSnapshot;
+        final int count = getChildCount();
+        if (snapshot.getChildCount() != count) {
+            mPendingSnapshot = null;
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            boolean gone = getChildAt(i).getVisibility() == GONE;
+            if (gone != (snapshot.roles[i] == KRuleSnapshot.ROLE_GONE)) {
+                mPendingSnapshot = null;
+                return false;
+            }
+        }
+        if (snapshot.width != MeasureSpec.getSize(widthMeasureSpec)) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            View view = getChildAt(i);
+            switch (snapshot.roles[i]) {
+                case KRuleSnapshot.ROLE_GONE:
+                    continue;
+                case KRuleSnapshot.ROLE_LEFT:
+                    mLeftView = view;
+                    break;
+                case KRuleSnapshot.ROLE_RIGHT:
+                    mRightView = view;
+                    break;
+                case KRuleSnapshot.ROLE_FOLLOW:
+                    mFollowView.add(view);
+                    break;
+                default:
+                    mBottomViews.add(view);
+                    break;
+            }
+            view.measure(MeasureSpec.makeMeasureSpec(snapshot.sizes[i * 2], MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(snapshot.sizes[i * 2 + 1], MeasureSpec.EXACTLY));
+        }
+        mMeasuredFromSnapshot = true;
+        setMeasuredDimension(snapshot.width, snapshot.height);
+        return true;
+    }
+
+
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
 
+        //一次布局结束，下一次测量重新判断和计数
+        mBlockMeasuredInPass = false;
+        mBlockCountedInPass = false;
+        if (mMeasuredFromSnapshot) {
+            layoutFromSnapshot();
+            return;
+        }
+        //已经进行了真正的布局，快照不再使用
+        mPendingSnapshot = null;
         //注意,对l,t,r,b要进行处理，否则出现意外的的错误
         l = 0;
         t = 0;
@@ -357,6 +662,74 @@ public class KRuleLayout extends ViewGroup {
         } else {
             layoutDirection(l, t, r, b);
         }
+        if (mSnapshotFile != null && !mSnapshotVerified) {
+            //第一帧之后再记录，不占用第一帧的时间
+            removeCallbacks(mSaveSnapshotRunnable);
+            post(mSaveSnapshotRunnable);
+        }
+    }
+
+    /**
+     * 直接按照快照中的位置布局，第一帧之后再进行真正的测量
+     */
+    private void layoutFromSnapshot() {
+        KRuleSnapshot snapshot = mPendingSnapshot;
+        final int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            if (snapshot.roles[i] != KRuleSnapshot.ROLE_GONE) {
+                getChildAt(i).layout(snapshot.rects[i * 4], snapshot.rects[i * 4 + 1],
+                        snapshot.rects[i * 4 + 2], snapshot.rects[i * 4 + 3]);
+            }
+        }
+        mPendingSnapshot = null;
+        mMeasuredFromSnapshot = false;
+        removeCallbacks(mRemeasureRunnable);
+        post(mRemeasureRunnable);
+    }
+
+    /**
+     * 记录第一次真正的布局，与读取的快照不同的时候在后台写入文件
+     */
+    private void saveSnapshot() {
+        if (mSnapshotFile == null || mSnapshotVerified) {
+            return;
+        }
+        mSnapshotVerified = true;
+        final int count = getChildCount();
+        byte[] roles = new byte[count];
+        int[] sizes = new int[count * 2];
+        int[] rects = new int[count * 4];
+        boolean direction = mLeftView != null && mRightView != null;
+        for (int i = 0; i < count; i++) {
+            View view = getChildAt(i);
+            if (view.getVisibility() == GONE) {
+                roles[i] = KRuleSnapshot.ROLE_GONE;
+                continue;
+            }
+            if (!direction) {
+                roles[i] = KRuleSnapshot.ROLE_BOTTOM;
+            } else if (view == mLeftView) {
+                roles[i] = KRuleSnapshot.ROLE_LEFT;
+            } else if (view == mRightView) {
+                roles[i] = KRuleSnapshot.ROLE_RIGHT;
+            } else if (mFollowView.contains(view)) {
+                roles[i] = KRuleSnapshot.ROLE_FOLLOW;
+            } else {
+                roles[i] = KRuleSnapshot.ROLE_BOTTOM;
+            }
+            sizes[i * 2] = view.getMeasuredWidth();
+            sizes[i * 2 + 1] = view.getMeasuredHeight();
+            rects[i * 4] = view.getLeft();
+            rects[i * 4 + 1] = view.getTop();
+            rects[i * 4 + 2] = view.getRight();
+            rects[i * 4 + 3] = view.getBottom();
+        }
+        KRuleSnapshot snapshot = new KRuleSnapshot(mSnapshotContentHash, getMeasuredWidth(), mDirection,
+                getMeasuredHeight(), roles, sizes, rects);
+        if (!snapshot.sameAs(mSavedSnapshot)) {
+            snapshot.writeAsync(mSnapshotFile);
+            mSavedSnapshot = snapshot;
+        }
     }
 
 
@@ -0,0 +1,213 @@
+package com.cugkuan.krule;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * KRuleLayout 的布局快照，记录最终的子 View 位置以及 left,right,follow,bottom 的划分。
+ * <p>
+ * 快照以紧凑的二进制格式保存，冷启动时通过内存映射读取，用来在第一帧直接布局，
+ * 真正的测量会在第一帧之后进行。
+ */
+final class KRuleSnapshot {
+
+    private static final int MAGIC = 0x4B52534E;
+
+    private static final int VERSION = 2;
+
+    /**
+     * 头部：magic,version,contentHash,width,direction,height,childCount
+     */
+    private static final int HEADER_SIZE = 7 * 4;
+
+    /**
+     * 每个子 View：role + measuredWidth,measuredHeight + left,top,right,bottom
+     */
+    private static final int CHILD_SIZE = 1 + 6 * 4;
+
+    static final byte ROLE_GONE = 0;
+    static final byte ROLE_LEFT = 1;
+    static final byte ROLE_RIGHT = 2;
+    static final byte ROLE_FOLLOW = 3;
+    static final byte ROLE_BOTTOM = 4;
+
+    final int contentHash;
+    final int width;
+    final int direction;
+    final int height;
+    /**
+     * 按照子 View 的顺序记录的角色
+     */
+    final byte[] roles;
+    /**
+     * 按照子 View 的顺序记录的 measuredWidth,measuredHeight；
+     * 布局的位置不一定等于测量的大小，所以单独保存
+     */
+    final int[] sizes;
+    /**
+     * 按照子 View 的顺序记录的 left,top,right,bottom
+     */
+    final int[] rects;
+
+    KRuleSnapshot(int contentHash, int width, int direction, int height, byte[] roles, int[] sizes,
+                  int[] rects) {
+        this.contentHash = contentHash;
+        this.width = width;
+        this.direction = direction;
+        this.height = height;
+        this.roles = roles;
+        this.sizes = sizes;
+        this.rects = rects;
+    }
+
+    int getChildCount() {
+        return roles.length;
+    }
+
+    /**
+     * 读取快照，文件不存在或者格式不正确的时候返回 null
+     */
+    static KRuleSnapshot read(File file) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            int contentHash = buffer.getInt();
+            int width = buffer.getInt();
+            int direction = buffer.getInt();
+            int height = buffer.getInt();
+            int count = buffer.getInt();
+            if (count < 0 || size != HEADER_SIZE + (long) count * CHILD_SIZE) {
+                return null;
+            }
+            byte[] roles = new byte[count];
+            int[] sizes = new int[count * 2];
+            int[] rects = new int[count * 4];
+            for (int i = 0; i < count; i++) {
+                roles[i] = buffer.get();
+                sizes[i * 2] = buffer.getInt();
+                sizes[i * 2 + 1] = buffer.getInt();
+                rects[i * 4] = buffer.getInt();
+                rects[i * 4 + 1] = buffer.getInt();
+                rects[i * 4 + 2] = buffer.getInt();
+                rects[i * 4 + 3] = buffer.getInt();
+            }
+            return new KRuleSnapshot(contentHash, width, direction, height, roles, sizes, rects);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(raf);
+        }
+    }
+
+    /**
+     * 写入快照，先写到临时文件再重命名，避免读到写了一半的文件
+     */
+    boolean write(File file) {
+        int count = roles.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * CHILD_SIZE);
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(contentHash)
+                .putInt(width)
+                .putInt(direction)
+                .putInt(height)
+                .putInt(count);
+        for (int i = 0; i < count; i++) {
+            buffer.put(roles[i]);
+            buffer.putInt(sizes[i * 2]);
+            buffer.putInt(sizes[i * 2 + 1]);
+            buffer.putInt(rects[i * 4]);
+            buffer.putInt(rects[i * 4 + 1]);
+            buffer.putInt(rects[i * 4 + 2]);
+            buffer.putInt(rects[i * 4 + 3]);
+        }
+        buffer.flip();
+
+        File temp = new File(file.getPath() + ".tmp");
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(temp, "rw");
+            FileChannel channel = raf.getChannel();
+            channel.truncate(0);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            closeQuietly(raf);
+            temp.delete();
+            return false;
+        }
+        closeQuietly(raf);
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 在后台线程写入快照
+     */
+    void writeAsync(final File file) {
+        WriteExecutorHolder.INSTANCE.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(file);
+            }
+        });
+    }
+
+    /**
+     * 写文件放到后台线程，不占用布局的时间；第一次写入的时候才创建
+     */
+    private static final class WriteExecutorHolder {
+        static final Executor INSTANCE = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "KRuleSnapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    boolean sameAs(KRuleSnapshot other) {
+        return other != null
+                && contentHash == other.contentHash
+                && width == other.width
+                && direction == other.direction
+                && height == other.height
+                && Arrays.equals(roles, other.roles)
+                && Arrays.equals(sizes, other.sizes)
+                && Arrays.equals(rects, other.rects);
+    }
+
+    private static void closeQuietly(RandomAccessFile raf) {
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
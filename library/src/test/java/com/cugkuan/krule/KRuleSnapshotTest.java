@@ -0,0 +1,165 @@
+package com.cugkuan.krule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * KRuleSnapshot 二进制格式的读写
+ */
+public class KRuleSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static KRuleSnapshot createSnapshot() {
+        byte[] roles = {KRuleSnapshot.ROLE_LEFT, KRuleSnapshot.ROLE_RIGHT, KRuleSnapshot.ROLE_FOLLOW,
+                KRuleSnapshot.ROLE_GONE, KRuleSnapshot.ROLE_BOTTOM};
+        int[] sizes = {100, 200, 300, 150, 100, 40, 0, 0, 500, 60};
+        int[] rects = {0, 0, 100, 200, 110, 0, 410, 150, 110, 160, 210, 210, 0, 0, 0, 0, 0, 220, 500, 280};
+        return new KRuleSnapshot(42, 540, KRuleLayout.DIRECTION_LEFT, 280, roles, sizes, rects);
+    }
+
+    private static void overwriteInt(File file, long position, int value) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(position);
+            raf.writeInt(value);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void setLength(File file, long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test
+    public void writeAndRead_roundTrip() throws IOException {
+        File file = new File(folder.getRoot(), "snapshot");
+        KRuleSnapshot snapshot = createSnapshot();
+        assertTrue(snapshot.write(file));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        KRuleSnapshot read = KRuleSnapshot.read(file);
+        assertNotNull(read);
+        assertTrue(snapshot.sameAs(read));
+        assertEquals(42, read.contentHash);
+        assertEquals(540, read.width);
+        assertEquals(280, read.height);
+        assertEquals(5, read.getChildCount());
+        assertArrayEquals(snapshot.sizes, read.sizes);
+        assertArrayEquals(snapshot.rects, read.rects);
+    }
+
+    @Test
+    public void write_replacesExistingFile() throws IOException {
+        File file = new File(folder.getRoot(), "snapshot");
+        assertTrue(createSnapshot().write(file));
+        KRuleSnapshot empty = new KRuleSnapshot(7, 320, KRuleLayout.DIRECTION_LEFT, 0,
+                new byte[0], new int[0], new int[0]);
+        assertTrue(empty.write(file));
+
+        KRuleSnapshot read = KRuleSnapshot.read(file);
+        assertNotNull(read);
+        assertTrue(empty.sameAs(read));
+    }
+
+    @Test
+    public void read_missingFile() {
+        assertNull(KRuleSnapshot.read(new File(folder.getRoot(), "missing")));
+        assertNull(KRuleSnapshot.read(null));
+    }
+
+    @Test
+    public void read_badMagic() throws IOException {
+        File file = new File(folder.getRoot(), "snapshot");
+        assertTrue(createSnapshot().write(file));
+        overwriteInt(file, 0, 0x12345678);
+        assertNull(KRuleSnapshot.read(file));
+    }
+
+    @Test
+    public void read_badVersion() throws IOException {
+        File file = new File(folder.getRoot(), "snapshot");
+        assertTrue(createSnapshot().write(file));
+        overwriteInt(file, 4, 1);
+        assertNull(KRuleSnapshot.read(file));
+    }
+
+    @Test
+    public void read_truncatedFile() throws IOException {
+        File file = new File(folder.getRoot(), "snapshot");
+        assertTrue(createSnapshot().write(file));
+        setLength(file, file.length() - 1);
+        assertNull(KRuleSnapshot.read(file));
+
+        setLength(file, 10);
+        assertNull(KRuleSnapshot.read(file));
+    }
+
+    @Test
+    public void read_oversizedFile() throws IOException {
+        File file = new File(folder.getRoot(), "snapshot");
+        assertTrue(createSnapshot().write(file));
+        setLength(file, file.length() + 1);
+        assertNull(KRuleSnapshot.read(file));
+    }
+
+    @Test
+    public void read_negativeChildCount() throws IOException {
+        File file = new File(folder.getRoot(), "snapshot");
+        assertTrue(createSnapshot().write(file));
+        overwriteInt(file, 24, -1);
+        assertNull(KRuleSnapshot.read(file));
+    }
+
+    @Test
+    public void write_failureRemovesTempFile() throws IOException {
+        //目标是一个非空目录，重命名失败
+        File file = folder.newFolder("snapshot");
+        assertTrue(new File(file, "child").createNewFile());
+        assertFalse(createSnapshot().write(file));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void sameAs() {
+        KRuleSnapshot snapshot = createSnapshot();
+        assertTrue(snapshot.sameAs(createSnapshot()));
+        assertFalse(snapshot.sameAs(null));
+
+        KRuleSnapshot otherHash = new KRuleSnapshot(43, snapshot.width, snapshot.direction, snapshot.height,
+                snapshot.roles, snapshot.sizes, snapshot.rects);
+        assertFalse(snapshot.sameAs(otherHash));
+
+        int[] sizes = snapshot.sizes.clone();
+        sizes[5] = sizes[5] + 1;
+        KRuleSnapshot otherSize = new KRuleSnapshot(snapshot.contentHash, snapshot.width, snapshot.direction,
+                snapshot.height, snapshot.roles, sizes, snapshot.rects);
+        assertFalse(snapshot.sameAs(otherSize));
+
+        int[] rects = snapshot.rects.clone();
+        rects[3] = rects[3] + 1;
+        KRuleSnapshot otherRect = new KRuleSnapshot(snapshot.contentHash, snapshot.width, snapshot.direction,
+                snapshot.height, snapshot.roles, snapshot.sizes, rects);
+        assertFalse(snapshot.sameAs(otherRect));
+
+        byte[] roles = snapshot.roles.clone();
+        roles[2] = KRuleSnapshot.ROLE_BOTTOM;
+        KRuleSnapshot otherRole = new KRuleSnapshot(snapshot.contentHash, snapshot.width, snapshot.direction,
+                snapshot.height, roles, snapshot.sizes, snapshot.rects);
+        assertFalse(snapshot.sameAs(otherRole));
+    }
+}